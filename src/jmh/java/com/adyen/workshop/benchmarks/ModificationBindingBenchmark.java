@@ -0,0 +1,112 @@
+package com.adyen.workshop.benchmarks;
+
+import com.adyen.model.checkout.Amount;
+import com.adyen.workshop.controllers.requests.CaptureRequestBody;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding a /api/capture body up to the Adyen Amount.
+ * mapBinding is the previous Map<String, Object> + safeMap/amountFromMap path, typedBinding is CaptureRequestBody
+ * including bean validation. Compare gc.alloc.rate.norm (gc profiler) for the allocation per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModificationBindingBenchmark {
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    @Param({"number", "string"})
+    public String valueFormat;
+
+    private ObjectMapper objectMapper;
+    private Validator validator;
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+        var value = "number".equals(valueFormat) ? "4999" : "\"4999\"";
+        body = ("{\"pspReference\":\"QFQTPCQ8HXSKGK82\",\"reference\":\"capture-42\",\"amount\":{\"currency\":\"EUR\",\"value\":" + value + "}}")
+                .getBytes();
+    }
+
+    @Benchmark
+    public Amount mapBinding() throws IOException {
+        var requestBody = objectMapper.readValue(body, MAP_TYPE);
+        var pspReference = (String) requestBody.get("pspReference");
+        var amountMap = safeMap(requestBody.get("amount"));
+        if (pspReference == null || pspReference.isBlank() || amountMap == null) {
+            return null;
+        }
+        requestBody.getOrDefault("reference", "capture").toString();
+        return amountFromMap(amountMap, null);
+    }
+
+    @Benchmark
+    public Amount typedBinding() throws IOException {
+        var requestBody = objectMapper.readValue(body, CaptureRequestBody.class);
+        if (!validator.validate(requestBody).isEmpty()) {
+            return null;
+        }
+        return requestBody.amount().toAmount();
+    }
+
+    // Copies of the helpers ApiController used before the typed request bodies
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> safeMap(Object value) {
+        if (value instanceof Map) {
+            return (Map<String, Object>) value;
+        }
+        return null;
+    }
+
+    private static Amount amountFromMap(Map<String, Object> amountMap, Long fallbackValue) {
+        var currency = amountMap.getOrDefault("currency", "EUR").toString();
+        var valueObj = amountMap.get("value");
+        Long value = null;
+        if (valueObj instanceof Number number) {
+            value = number.longValue();
+        } else if (valueObj instanceof String stringValue && !stringValue.isBlank()) {
+            try {
+                value = Long.parseLong(stringValue);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        if (value == null) {
+            value = fallbackValue;
+        }
+
+        if (value == null) {
+            return null;
+        }
+
+        var amount = new Amount();
+        amount.setCurrency(currency);
+        amount.setValue(value);
+        return amount;
+    }
+}
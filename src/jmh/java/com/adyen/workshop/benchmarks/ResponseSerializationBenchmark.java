@@ -0,0 +1,115 @@
+package com.adyen.workshop.benchmarks;
+
+import com.adyen.model.checkout.PaymentMethod;
+import com.adyen.model.checkout.PaymentMethodIssuer;
+import com.adyen.model.checkout.PaymentMethodsResponse;
+import com.adyen.model.checkout.StoredPaymentMethod;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bytes and CPU per /api/paymentMethods response.
+ * Before: profile=pretty, gzip=false (indent_output, no compression). After: profile=compact-blackbird, gzip=true.
+ * The bytes on the wire for each combination are printed once during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    @Param({"pretty", "compact", "compact-blackbird"})
+    public String profile;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private ObjectMapper objectMapper;
+    private PaymentMethodsResponse paymentMethodsResponse;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Same settings as application.properties (default-property-inclusion=non_null, indent_output)
+        objectMapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        if ("pretty".equals(profile)) {
+            objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        }
+        if ("compact-blackbird".equals(profile)) {
+            objectMapper.registerModule(new BlackbirdModule());
+        }
+        paymentMethodsResponse = samplePaymentMethodsResponse();
+        System.out.printf("%n[profile=%s, gzip=%s] %d bytes per PaymentMethodsResponse%n", profile, gzip, serialize().length);
+    }
+
+    @Benchmark
+    public byte[] paymentMethodsResponse() throws IOException {
+        return serialize();
+    }
+
+    private byte[] serialize() throws IOException {
+        var bytes = new ByteArrayOutputStream(16 * 1024);
+        // writeValue closes the stream, which also finishes the gzip trailer
+        OutputStream out = gzip ? new GZIPOutputStream(bytes) : bytes;
+        objectMapper.writeValue(out, paymentMethodsResponse);
+        return bytes.toByteArray();
+    }
+
+    // Roughly the shape of a TEST account /paymentMethods response: cards, a few local methods with issuers and stored cards
+    private static PaymentMethodsResponse samplePaymentMethodsResponse() {
+        var paymentMethods = new ArrayList<PaymentMethod>();
+        paymentMethods.add(new PaymentMethod()
+                .name("Cards")
+                .type("scheme")
+                .brands(List.of("visa", "mc", "amex", "cup", "diners", "discover", "jcb", "maestro", "bcmc", "cartebancaire")));
+        var issuers = new ArrayList<PaymentMethodIssuer>();
+        for (int i = 0; i < 12; i++) {
+            issuers.add(new PaymentMethodIssuer().id(String.valueOf(1150 + i)).name("Test Issuer " + i));
+        }
+        paymentMethods.add(new PaymentMethod().name("iDEAL").type("ideal").issuers(issuers));
+        paymentMethods.add(new PaymentMethod().name("Online Banking PL").type("onlineBanking_PL").issuers(issuers));
+        for (var type : List.of("paypal", "klarna", "klarna_paynow", "klarna_account", "applepay", "googlepay", "sepadirectdebit", "trustly", "blik", "paysafecard")) {
+            paymentMethods.add(new PaymentMethod().name(type.toUpperCase()).type(type));
+        }
+
+        var storedPaymentMethods = new ArrayList<StoredPaymentMethod>();
+        for (int i = 0; i < 5; i++) {
+            storedPaymentMethods.add(new StoredPaymentMethod()
+                    .id("M5N7TQ4TG5PFWR5" + i)
+                    .brand("visa")
+                    .expiryMonth("03")
+                    .expiryYear("2030")
+                    .holderName("Developer Relations Team")
+                    .lastFour("111" + i)
+                    .name("VISA")
+                    .type("scheme")
+                    .supportedShopperInteractions(List.of("Ecommerce", "ContAuth")));
+        }
+
+        return new PaymentMethodsResponse()
+                .paymentMethods(paymentMethods)
+                .storedPaymentMethods(storedPaymentMethods);
+    }
+}
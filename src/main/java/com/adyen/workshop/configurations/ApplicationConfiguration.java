@@ -20,6 +20,9 @@ public class ApplicationConfiguration {
     @Value("${ADYEN_HMAC_KEY:#{null}}") // Don't edit @Value(...)
     private String adyenHmacKey; // We'll cover this in step 16.
 
+    @Value("${WEBHOOK_ARCHIVE_FILE:#{null}}")
+    private String webhookArchiveFile; // NDJSON file accepted webhooks are appended to, used to rebuild reconciliation totals
+
     public int getServerPort() {
         return serverPort;
     }
@@ -59,4 +62,12 @@ public class ApplicationConfiguration {
     public void setAdyenHmacKey(String adyenHmacKey) {
         this.adyenHmacKey = adyenHmacKey;
     }
+
+    public String getWebhookArchiveFile() {
+        return webhookArchiveFile;
+    }
+
+    public void setWebhookArchiveFile(String webhookArchiveFile) {
+        this.webhookArchiveFile = webhookArchiveFile;
+    }
 }
\ No newline at end of file
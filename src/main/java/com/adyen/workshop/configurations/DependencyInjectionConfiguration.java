@@ -7,6 +7,8 @@ import com.adyen.service.checkout.ModificationsApi;
 import com.adyen.service.checkout.PaymentsApi;
 import com.adyen.service.checkout.RecurringApi;
 import com.adyen.util.HMACValidator;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -47,4 +49,10 @@ public class DependencyInjectionConfiguration {
     HMACValidator hmacValidator() {
         return new HMACValidator();
     }
+
+    // Spring Boot registers every Module bean on its ObjectMapper, Blackbird swaps reflective getters/setters for generated lambdas
+    @Bean
+    Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
 }
@@ -0,0 +1,102 @@
+package com.adyen.workshop.configurations;
+
+import com.adyen.workshop.controllers.views.RenderedPageCacheFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+/**
+ * Caching setup for the checkout pages and the assets under static/.
+ * Spring Boot's default static mapping is turned off (spring.web.resources.add-mappings=false) so this is the only one.
+ */
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+    private static final String[] PAGE_URL_PATTERNS = {"/", "/preview", "/checkout", "/result/*", "/redirect"};
+    // The content version VersionResourceResolver puts in the file name, e.g. application-<md5>.css
+    private static final Pattern VERSIONED_PATH = Pattern.compile("-[0-9a-f]{32}\\.[^/]+$");
+    private static final String VERSIONED_CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable().getHeaderValue();
+    private static final String UNVERSIONED_CACHE_CONTROL = CacheControl.noCache().getHeaderValue();
+
+    // Devtools sets these to false, so edited templates and CSS/JS (with a new hash) are picked up under bootRun
+    @Value("${spring.web.resources.chain.cache:true}")
+    private boolean cacheResources;
+    @Value("${spring.thymeleaf.cache:true}")
+    private boolean cachePages;
+
+    private final ApplicationConfiguration applicationConfiguration;
+
+    public WebConfiguration(ApplicationConfiguration applicationConfiguration) {
+        this.applicationConfiguration = applicationConfiguration;
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        // No cache period on the handler, the Cache-Control header is set per request by the interceptor below
+        registry.addResourceHandler("/**")
+                .addResourceLocations("classpath:/static/")
+                .resourceChain(cacheResources)
+                // Picks up the .gz files generated at build time (see precompressStaticResources in build.gradle)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Only a content-hashed URL (e.g. /css/application-<md5>.css) can be cached forever,
+        // the plain path of the same asset changes content on deploy so browsers have to revalidate it
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (handler instanceof ResourceHttpRequestHandler) {
+                    var versioned = VERSIONED_PATH.matcher(request.getRequestURI()).find();
+                    response.setHeader(HttpHeaders.CACHE_CONTROL, versioned ? VERSIONED_CACHE_CONTROL : UNVERSIONED_CACHE_CONTROL);
+                }
+                return true;
+            }
+        });
+    }
+
+    // Rewrites @{...} links in the Thymeleaf templates to their content-hashed version
+    @Bean
+    ResourceUrlEncodingFilter resourceUrlEncodingFilter() {
+        return new ResourceUrlEncodingFilter();
+    }
+
+    // Repeat loads end in a 304 without a body. The ETag is weak because Tomcat doesn't compress responses with a strong one.
+    @Bean
+    FilterRegistrationBean<ShallowEtagHeaderFilter> shallowEtagHeaderFilter() {
+        var filter = new ShallowEtagHeaderFilter();
+        filter.setWriteWeakETag(true);
+        var registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns(PAGE_URL_PATTERNS);
+        registration.setOrder(1);
+        return registration;
+    }
+
+    // Runs inside the ETag filter, so a page served from the cache still gets its ETag/304
+    @Bean
+    FilterRegistrationBean<RenderedPageCacheFilter> renderedPageCacheFilter() {
+        var registration = new FilterRegistrationBean<>(new RenderedPageCacheFilter(applicationConfiguration::getAdyenClientKey));
+        registration.addUrlPatterns(PAGE_URL_PATTERNS);
+        registration.setOrder(2);
+        registration.setEnabled(cachePages);
+        return registration;
+    }
+}
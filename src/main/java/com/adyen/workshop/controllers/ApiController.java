@@ -3,21 +3,30 @@ package com.adyen.workshop.controllers;
 import com.adyen.model.RequestOptions;
 import com.adyen.model.checkout.*;
 import com.adyen.workshop.configurations.ApplicationConfiguration;
+import com.adyen.workshop.controllers.requests.CancelRequestBody;
+import com.adyen.workshop.controllers.requests.CaptureRequestBody;
+import com.adyen.workshop.controllers.requests.ModifyAmountRequestBody;
+import com.adyen.workshop.controllers.requests.RefundRequestBody;
 import com.adyen.service.checkout.ModificationsApi;
 import com.adyen.service.checkout.PaymentsApi;
 import com.adyen.service.checkout.RecurringApi;
 import com.adyen.service.exception.ApiException;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.view.RedirectView;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * REST controller for using the Adyen payments API.
@@ -26,17 +35,28 @@ import java.util.UUID;
 public class ApiController {
     private final Logger log = LoggerFactory.getLogger(ApiController.class);
     private static final String SHOPPER_REFERENCE = "KevinOliver";
+    private static final int SHOPPER_REDIRECT_CACHE_SIZE = 1000;
 
     private final ApplicationConfiguration applicationConfiguration;
     private final PaymentsApi paymentsApi;
     private final ModificationsApi modificationsApi;
     private final RecurringApi recurringApi;
+    private final AsyncTaskExecutor taskExecutor;
 
-    public ApiController(ApplicationConfiguration applicationConfiguration, PaymentsApi paymentsApi, ModificationsApi modificationsApi, RecurringApi recurringApi) {
+    // Outcome of /handleShopperRedirect per redirectResult/payload, least recently used entries are evicted. Guarded by itself.
+    private final Map<String, CompletableFuture<String>> shopperRedirectResults = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<String>> eldest) {
+            return size() > SHOPPER_REDIRECT_CACHE_SIZE;
+        }
+    };
+
+    public ApiController(ApplicationConfiguration applicationConfiguration, PaymentsApi paymentsApi, ModificationsApi modificationsApi, RecurringApi recurringApi, AsyncTaskExecutor taskExecutor) {
         this.applicationConfiguration = applicationConfiguration;
         this.paymentsApi = paymentsApi;
         this.modificationsApi = modificationsApi;
         this.recurringApi = recurringApi;
+        this.taskExecutor = taskExecutor;
     }
 
     // Step 0
@@ -264,33 +284,16 @@ public class ApiController {
 
     // Adjust authorised amount (preauthorisation adjust)
     @PostMapping("/api/modify-amount")
-    public ResponseEntity<PaymentAmountUpdateResponse> modifyAmount(@RequestBody Map<String, Object> body) throws IOException, ApiException {
-        var pspReference = (String) body.get("pspReference");
-        var amountMap = safeMap(body.get("amount"));
-        if (pspReference == null || pspReference.isBlank() || amountMap == null) {
-            log.warn("Modify amount requested without required fields");
-            return ResponseEntity.badRequest().build();
-        }
-
-        var amount = amountFromMap(amountMap, 0L);
-        if (amount == null) {
-            return ResponseEntity.badRequest().build();
-        }
+    public ResponseEntity<PaymentAmountUpdateResponse> modifyAmount(@Valid @RequestBody ModifyAmountRequestBody body) throws IOException, ApiException {
+        var pspReference = body.pspReference();
 
         var paymentAmountUpdateRequest = new PaymentAmountUpdateRequest();
         paymentAmountUpdateRequest.setMerchantAccount(applicationConfiguration.getAdyenMerchantAccount());
-        paymentAmountUpdateRequest.setReference(body.getOrDefault("reference", "adjust-" + UUID.randomUUID()).toString());
-        paymentAmountUpdateRequest.setAmount(amount);
-
-        var industryUsage = body.get("industryUsage");
-        if (industryUsage instanceof String industryUsageString && !industryUsageString.isBlank()) {
-            try {
-                paymentAmountUpdateRequest.setIndustryUsage(PaymentAmountUpdateRequest.IndustryUsageEnum.fromValue(industryUsageString));
-            } catch (IllegalArgumentException ex) {
-                log.warn("Invalid industryUsage provided: {}", industryUsageString);
-                return ResponseEntity.badRequest().build();
-            }
-        }
+        paymentAmountUpdateRequest.setReference(body.reference() != null ? body.reference() : "adjust-" + UUID.randomUUID());
+        paymentAmountUpdateRequest.setAmount(body.amount().toAmount());
+
+        // Checked at bind time, see ModifyAmountRequestBody.isIndustryUsageValid()
+        paymentAmountUpdateRequest.setIndustryUsage(body.industryUsageValue());
 
         var requestOptions = new RequestOptions();
         requestOptions.setIdempotencyKey(UUID.randomUUID().toString());
@@ -303,23 +306,13 @@ public class ApiController {
 
     // Capture the authorised payment
     @PostMapping("/api/capture")
-    public ResponseEntity<PaymentCaptureResponse> capture(@RequestBody Map<String, Object> body) throws IOException, ApiException {
-        var pspReference = (String) body.get("pspReference");
-        var amountMap = safeMap(body.get("amount"));
-        if (pspReference == null || pspReference.isBlank() || amountMap == null) {
-            log.warn("Capture requested without required fields");
-            return ResponseEntity.badRequest().build();
-        }
-
-        var amount = amountFromMap(amountMap, null);
-        if (amount == null) {
-            return ResponseEntity.badRequest().build();
-        }
+    public ResponseEntity<PaymentCaptureResponse> capture(@Valid @RequestBody CaptureRequestBody body) throws IOException, ApiException {
+        var pspReference = body.pspReference();
 
         var captureRequest = new PaymentCaptureRequest();
         captureRequest.setMerchantAccount(applicationConfiguration.getAdyenMerchantAccount());
-        captureRequest.setReference(body.getOrDefault("reference", "capture-" + UUID.randomUUID()).toString());
-        captureRequest.setAmount(amount);
+        captureRequest.setReference(body.reference() != null ? body.reference() : "capture-" + UUID.randomUUID());
+        captureRequest.setAmount(body.amount().toAmount());
 
         var requestOptions = new RequestOptions();
         requestOptions.setIdempotencyKey(UUID.randomUUID().toString());
@@ -332,16 +325,12 @@ public class ApiController {
 
     // Cancel the authorised payment
     @PostMapping("/api/cancel")
-    public ResponseEntity<PaymentCancelResponse> cancel(@RequestBody Map<String, Object> body) throws IOException, ApiException {
-        var pspReference = (String) body.get("pspReference");
-        if (pspReference == null || pspReference.isBlank()) {
-            log.warn("Cancel requested without pspReference");
-            return ResponseEntity.badRequest().build();
-        }
+    public ResponseEntity<PaymentCancelResponse> cancel(@Valid @RequestBody CancelRequestBody body) throws IOException, ApiException {
+        var pspReference = body.pspReference();
 
         var cancelRequest = new PaymentCancelRequest();
         cancelRequest.setMerchantAccount(applicationConfiguration.getAdyenMerchantAccount());
-        cancelRequest.setReference(body.getOrDefault("reference", "cancel-" + UUID.randomUUID()).toString());
+        cancelRequest.setReference(body.reference() != null ? body.reference() : "cancel-" + UUID.randomUUID());
 
         var requestOptions = new RequestOptions();
         requestOptions.setIdempotencyKey(UUID.randomUUID().toString());
@@ -354,23 +343,13 @@ public class ApiController {
 
     // Refund after capture
     @PostMapping("/api/refund")
-    public ResponseEntity<PaymentRefundResponse> refund(@RequestBody Map<String, Object> body) throws IOException, ApiException {
-        var pspReference = (String) body.get("pspReference");
-        var amountMap = safeMap(body.get("amount"));
-        if (pspReference == null || pspReference.isBlank() || amountMap == null) {
-            log.warn("Refund requested without required fields");
-            return ResponseEntity.badRequest().build();
-        }
-
-        var amount = amountFromMap(amountMap, null);
-        if (amount == null) {
-            return ResponseEntity.badRequest().build();
-        }
+    public ResponseEntity<PaymentRefundResponse> refund(@Valid @RequestBody RefundRequestBody body) throws IOException, ApiException {
+        var pspReference = body.pspReference();
 
         var refundRequest = new PaymentRefundRequest();
         refundRequest.setMerchantAccount(applicationConfiguration.getAdyenMerchantAccount());
-        refundRequest.setReference(body.getOrDefault("reference", "refund-" + UUID.randomUUID()).toString());
-        refundRequest.setAmount(amount);
+        refundRequest.setReference(body.reference() != null ? body.reference() : "refund-" + UUID.randomUUID());
+        refundRequest.setAmount(body.amount().toAmount());
 
         var requestOptions = new RequestOptions();
         requestOptions.setIdempotencyKey(UUID.randomUUID().toString());
@@ -383,50 +362,71 @@ public class ApiController {
 
 
     // Step 14 - Handle Redirect 3DS2 during payment.
+    // Runs the /payments/details call on the task executor and remembers the outcome per redirectResult/payload,
+    // so a refresh or back-button replay of the returnUrl doesn't hit Adyen again.
     @GetMapping("/handleShopperRedirect")
-    public RedirectView redirect(@RequestParam(required = false) String payload, @RequestParam(required = false) String redirectResult) throws IOException, ApiException {
-
-        return null;
-    }
-
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> safeMap(Object value) {
-        if (value instanceof Map) {
-            return (Map<String, Object>) value;
+    public CompletableFuture<RedirectView> redirect(@RequestParam(required = false) String orderRef, @RequestParam(required = false) String payload, @RequestParam(required = false) String redirectResult) {
+        var paymentCompletionDetails = new PaymentCompletionDetails();
+
+        // Handle redirect result or payload
+        if (redirectResult != null && !redirectResult.isEmpty()) {
+            // For redirect, you are redirected to an Adyen domain to complete the 3DS2 challenge
+            // After completing the 3DS2 challenge, you get the redirect result from Adyen in the returnUrl
+            // We then pass on the redirectResult
+            paymentCompletionDetails.redirectResult(redirectResult);
+        } else if (payload != null && !payload.isEmpty()) {
+            paymentCompletionDetails.payload(payload);
+        } else {
+            log.warn("Shopper redirect for orderRef {} without redirectResult or payload", orderRef);
+            return CompletableFuture.completedFuture(new RedirectView("/result/error"));
         }
-        return null;
-    }
 
-    private Amount amountFromMap(Map<String, Object> amountMap, Long fallbackValue) {
-        if (amountMap == null) {
-            return null;
-        }
-        var currency = amountMap.getOrDefault("currency", "EUR").toString();
-        var valueObj = amountMap.get("value");
-        Long value = null;
-        if (valueObj instanceof Number number) {
-            value = number.longValue();
-        } else if (valueObj instanceof String stringValue && !stringValue.isBlank()) {
-            try {
-                value = Long.parseLong(stringValue);
-            } catch (NumberFormatException e) {
-                log.warn("Unable to parse amount value {}", stringValue);
-                return null;
-            }
+        var paymentDetailsRequest = new PaymentDetailsRequest();
+        paymentDetailsRequest.setDetails(paymentCompletionDetails);
+
+        // Keyed on what Adyen sent back rather than the (shopper-controlled, reusable) orderRef,
+        // a refresh or back-button replay repeats the same URL and so hits the same entry
+        var cacheKey = (redirectResult != null && !redirectResult.isEmpty())
+                ? "redirectResult:" + redirectResult
+                : "payload:" + payload;
+        CompletableFuture<String> redirectUrl;
+        synchronized (shopperRedirectResults) {
+            redirectUrl = shopperRedirectResults.computeIfAbsent(cacheKey,
+                    key -> CompletableFuture.supplyAsync(() -> resolveShopperRedirect(paymentDetailsRequest), taskExecutor));
         }
 
-        if (value == null) {
-            value = fallbackValue;
-        }
+        return redirectUrl
+                .exceptionally(ex -> {
+                    // Don't keep failed lookups around, the shopper (or Adyen) may retry the returnUrl
+                    log.warn("Unable to complete shopper redirect for orderRef {}", orderRef, ex);
+                    synchronized (shopperRedirectResults) {
+                        shopperRedirectResults.remove(cacheKey, redirectUrl);
+                    }
+                    return "/result/error";
+                })
+                .thenApply(RedirectView::new);
+    }
 
-        if (value == null) {
-            log.warn("Amount value missing for request");
-            return null;
+    private String resolveShopperRedirect(PaymentDetailsRequest paymentDetailsRequest) {
+        PaymentDetailsResponse paymentsDetailsResponse;
+        try {
+            paymentsDetailsResponse = paymentsApi.paymentsDetails(paymentDetailsRequest);
+        } catch (IOException | ApiException e) {
+            throw new CompletionException(e);
         }
+        log.info("PaymentsDetailsResponse {}", paymentsDetailsResponse);
 
-        var amount = new Amount();
-        amount.setCurrency(currency);
-        amount.setValue(value);
-        return amount;
+        // Handle response and redirect user accordingly
+        var resultCode = paymentsDetailsResponse.getResultCode();
+        if (resultCode == null) {
+            return "/result/error";
+        }
+        var redirectURL = switch (resultCode) {
+            case AUTHORISED -> "/result/success";
+            case PENDING, RECEIVED -> "/result/pending";
+            case REFUSED, CANCELLED -> "/result/failed";
+            default -> "/result/error";
+        };
+        return redirectURL + "?reason=" + resultCode;
     }
 }
@@ -0,0 +1,39 @@
+package com.adyen.workshop.controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Turns request body binding and validation failures on {@link ApiController} into a 400 problem detail listing the offending fields.
+ */
+@RestControllerAdvice(assignableTypes = ApiController.class)
+public class ApiExceptionHandler {
+    private final Logger log = LoggerFactory.getLogger(ApiExceptionHandler.class);
+
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public ResponseEntity<ProblemDetail> invalidRequestBody(MethodArgumentNotValidException ex) {
+        var errors = new LinkedHashMap<String, String>();
+        ex.getBindingResult().getFieldErrors().forEach(error -> errors.putIfAbsent(error.getField(), error.getDefaultMessage()));
+        log.warn("Request body for {} failed validation: {}", ex.getParameter().getExecutable().getName(), errors);
+
+        var problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, "Request body failed validation");
+        problemDetail.setProperty("errors", errors);
+        return ResponseEntity.badRequest().body(problemDetail);
+    }
+
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ProblemDetail> unreadableRequestBody(HttpMessageNotReadableException ex) {
+        log.warn("Unable to read request body: {}", ex.getMostSpecificCause().getMessage());
+        var problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, "Request body is missing or malformed");
+        return ResponseEntity.badRequest().body(problemDetail);
+    }
+}
@@ -0,0 +1,80 @@
+package com.adyen.workshop.controllers;
+
+import com.adyen.workshop.reconciliation.ReconciliationTotal;
+import com.adyen.workshop.reconciliation.SettlementAggregator;
+import com.adyen.workshop.webhooks.WebhookArchive;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST controller exposing the settlement totals built from incoming webhooks
+ */
+@RestController
+public class ReconciliationController {
+    private final Logger log = LoggerFactory.getLogger(ReconciliationController.class);
+
+    private final SettlementAggregator settlementAggregator;
+
+    private final WebhookArchive webhookArchive;
+
+    public ReconciliationController(SettlementAggregator settlementAggregator, WebhookArchive webhookArchive) {
+        this.settlementAggregator = settlementAggregator;
+        this.webhookArchive = webhookArchive;
+    }
+
+    @GetMapping("/api/reconciliation")
+    public ResponseEntity<List<ReconciliationTotal>> reconciliation() {
+        return ResponseEntity.ok(settlementAggregator.totals());
+    }
+
+    // Example curl: curl -o reconciliation.csv http://localhost:8080/api/reconciliation/export.csv
+    @GetMapping("/api/reconciliation/export.csv")
+    public ResponseEntity<String> reconciliationCsv() {
+        var csv = new StringBuilder("day,currency,eventCode,success,count,amountValue\n");
+        for (var total : settlementAggregator.totals()) {
+            // Notifications without an eventDate have no day, left empty
+            csv.append(total.day() != null ? total.day().toString() : "").append(',')
+                    .append(total.currency()).append(',')
+                    .append(total.eventCode()).append(',')
+                    .append(total.success()).append(',')
+                    .append(total.count()).append(',')
+                    .append(total.amountValue()).append('\n');
+        }
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"reconciliation.csv\"")
+                .body(csv.toString());
+    }
+
+    // Example curl: curl -X POST http://localhost:8080/api/reconciliation/rebuild
+    @PostMapping("/api/reconciliation/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild() throws IOException {
+        if (!webhookArchive.isEnabled()) {
+            log.warn("Reconciliation rebuild requested without WEBHOOK_ARCHIVE_FILE configured");
+            return ResponseEntity.badRequest().body(Map.of("error", "WEBHOOK_ARCHIVE_FILE is not configured"));
+        }
+        var archiveFile = webhookArchive.getArchiveFile();
+        if (!Files.isRegularFile(archiveFile)) {
+            // Nothing has been archived yet, the file is only created by the first accepted webhook
+            log.warn("Reconciliation rebuild requested but archive {} does not exist", archiveFile);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Webhook archive " + archiveFile + " does not exist yet"));
+        }
+
+        var started = System.nanoTime();
+        var events = settlementAggregator.rebuild(archiveFile);
+        var elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        return ResponseEntity.ok(Map.of("events", events, "elapsedMillis", elapsedMillis));
+    }
+}
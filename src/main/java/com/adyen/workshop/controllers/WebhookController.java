@@ -1,9 +1,9 @@
 package com.adyen.workshop.controllers;
 
 import com.adyen.model.notification.NotificationRequest;
-import com.adyen.model.notification.NotificationRequestItem;
-import com.adyen.util.HMACValidator;
-import com.adyen.workshop.configurations.ApplicationConfiguration;
+import com.adyen.workshop.webhooks.WebhookArchive;
+import com.adyen.workshop.webhooks.WebhookEventSummary;
+import com.adyen.workshop.webhooks.WebhookProcessor;
 import org.apache.coyote.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,9 +17,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.io.IOException;
 import java.security.SignatureException;
-import java.util.Deque;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedDeque;
 
 /**
  * REST controller for receiving Adyen webhook notifications
@@ -27,16 +25,15 @@ import java.util.concurrent.ConcurrentLinkedDeque;
 @RestController
 public class WebhookController {
     private final Logger log = LoggerFactory.getLogger(WebhookController.class);
-    private final Deque<WebhookEventSummary> recentWebhookEvents = new ConcurrentLinkedDeque<>();
 
-    private final ApplicationConfiguration applicationConfiguration;
+    private final WebhookProcessor webhookProcessor;
 
-    private final HMACValidator hmacValidator;
+    private final WebhookArchive webhookArchive;
 
     @Autowired
-    public WebhookController(ApplicationConfiguration applicationConfiguration, HMACValidator hmacValidator) {
-        this.applicationConfiguration = applicationConfiguration;
-        this.hmacValidator = hmacValidator;
+    public WebhookController(WebhookProcessor webhookProcessor, WebhookArchive webhookArchive) {
+        this.webhookProcessor = webhookProcessor;
+        this.webhookArchive = webhookArchive;
     }
 
     // Step 16 - Validate the HMAC signature using the ADYEN_HMAC_KEY
@@ -53,35 +50,12 @@ public class WebhookController {
         // Handle classic notification payload
         if (notificationRequest != null && notificationRequest.getNotificationItems() != null) {
             try {
-                for (NotificationRequestItem item : notificationRequest.getNotificationItems()) {
-
-                    // Step 16 - Validate the HMAC signature using the ADYEN_HMAC_KEY
-                    if (!hmacValidator.validateHMAC(item, this.applicationConfiguration.getAdyenHmacKey())) {
-                        log.warn("Could not validate HMAC signature for incoming webhook message: {}", item);
-                        return ResponseEntity.unprocessableEntity().build();
-                    }
-
-                    var eventCode = item.getEventCode();
-                    var success = item.isSuccess();
-                    var merchantReference = item.getMerchantReference();
-                    var pspReference = item.getPspReference();
-                    var additionalData = item.getAdditionalData();
-                    // Token can show up under different keys
-                    String storedPaymentMethodId = additionalData != null
-                            ? (additionalData.get("tokenization.storedPaymentMethodId") != null
-                                ? additionalData.get("tokenization.storedPaymentMethodId")
-                                : additionalData.get("storedPaymentMethodId"))
-                            : null;
-                    String recurringDetailReference = additionalData != null
-                            ? additionalData.get("recurring.recurringDetailReference")
-                            : null;
-
-                    // Log any classic notification with token info if present
-                    log.info("Webhook eventCode={}, success={}, merchantRef={}, pspRef={}, token={}, storedPaymentMethodId={}",
-                            eventCode, success, merchantReference, pspReference, recurringDetailReference, storedPaymentMethodId);
-                    rememberWebhook(item);
+                // Step 16 - Validate the HMAC signature of every item before any of them is processed
+                if (!webhookProcessor.validateAndProcess(notificationRequest.getNotificationItems())) {
+                    return ResponseEntity.unprocessableEntity().build();
                 }
 
+                archiveWebhook(json);
                 return ResponseEntity.ok("[accepted]");
             } catch (SignatureException e) {
                 // Handle invalid signature
@@ -118,36 +92,15 @@ public class WebhookController {
 
     @GetMapping("/api/webhooks/recent")
     public ResponseEntity<List<WebhookEventSummary>> recentWebhooks() {
-        return ResponseEntity.ok(List.copyOf(recentWebhookEvents));
+        return ResponseEntity.ok(webhookProcessor.recentWebhooks());
     }
 
-    private void rememberWebhook(NotificationRequestItem item) {
-        var amount = item.getAmount();
-        var summary = new WebhookEventSummary(
-                item.getEventCode(),
-                item.isSuccess(),
-                item.getMerchantReference(),
-                item.getPspReference(),
-                item.getOriginalReference(),
-                item.getReason(),
-                amount != null ? amount.getValue() : null,
-                amount != null ? amount.getCurrency() : null
-        );
-
-        recentWebhookEvents.addFirst(summary);
-        while (recentWebhookEvents.size() > 25) {
-            recentWebhookEvents.removeLast();
+    private void archiveWebhook(String json) {
+        try {
+            webhookArchive.append(json);
+        } catch (IOException e) {
+            // The live totals are already updated, only a later rebuild would miss this payload
+            log.error("Unable to archive webhook payload to {}", webhookArchive.getArchiveFile(), e);
         }
     }
-
-    private record WebhookEventSummary(
-            String eventCode,
-            Boolean success,
-            String merchantReference,
-            String pspReference,
-            String originalReference,
-            String reason,
-            Long amountValue,
-            String amountCurrency
-    ) {}
 }
@@ -0,0 +1,19 @@
+package com.adyen.workshop.controllers.requests;
+
+import com.adyen.model.checkout.Amount;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import jakarta.validation.constraints.PositiveOrZero;
+
+/**
+ * Amount object of a modification request body, e.g. {"currency": "EUR", "value": 4999}.
+ * Decoded by {@link AmountBodyDeserializer}, valuePresent tells a missing value apart from 0.
+ */
+@JsonDeserialize(using = AmountBodyDeserializer.class)
+public record AmountBody(String currency, @PositiveOrZero long value, boolean valuePresent) {
+
+    public Amount toAmount() {
+        return new Amount()
+                .currency(currency)
+                .value(value);
+    }
+}
@@ -0,0 +1,83 @@
+package com.adyen.workshop.controllers.requests;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Reads an amount straight from the token stream into a primitive long, accepting the value as a whole number or a numeric string.
+ * The currency defaults to EUR, anything other than a string (or null) is rejected.
+ */
+public class AmountBodyDeserializer extends StdDeserializer<AmountBody> {
+    private static final String DEFAULT_CURRENCY = "EUR";
+
+    public AmountBodyDeserializer() {
+        super(AmountBody.class);
+    }
+
+    @Override
+    public AmountBody deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (!parser.isExpectedStartObjectToken()) {
+            return (AmountBody) context.handleUnexpectedToken(AmountBody.class, parser);
+        }
+
+        var currency = DEFAULT_CURRENCY;
+        long value = 0;
+        var valuePresent = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.currentName();
+            var token = parser.nextToken();
+            switch (field) {
+                case "currency" -> {
+                    if (token == JsonToken.VALUE_STRING) {
+                        currency = parser.getText();
+                    } else if (token != JsonToken.VALUE_NULL) {
+                        context.handleUnexpectedToken(String.class, parser);
+                    }
+                }
+                case "value" -> {
+                    if (token == JsonToken.VALUE_NUMBER_INT) {
+                        // Throws on values that don't fit in a long
+                        value = parser.getLongValue();
+                        valuePresent = true;
+                    } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+                        value = wholeValue(parser.getDecimalValue(), context);
+                        valuePresent = true;
+                    } else if (token == JsonToken.VALUE_STRING) {
+                        var text = parser.getText().trim();
+                        if (!text.isEmpty()) {
+                            value = parseValue(text, context);
+                            valuePresent = true;
+                        }
+                    } else if (token != JsonToken.VALUE_NULL) {
+                        context.handleUnexpectedToken(long.class, parser);
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new AmountBody(currency, value, valuePresent);
+    }
+
+    // Amounts are in minor units, 5000.0 is accepted but 49.99 is rejected rather than truncated
+    private static long wholeValue(BigDecimal decimal, DeserializationContext context) throws IOException {
+        try {
+            return decimal.longValueExact();
+        } catch (ArithmeticException e) {
+            throw context.weirdNumberException(decimal, long.class, "amount value must be a whole number of minor units");
+        }
+    }
+
+    private static long parseValue(String text, DeserializationContext context) throws IOException {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw context.weirdStringException(text, long.class, "not a valid amount value");
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.adyen.workshop.controllers.requests;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * Body of /api/cancel.
+ */
+public record CancelRequestBody(
+        @NotBlank String pspReference,
+        String reference
+) {}
@@ -0,0 +1,21 @@
+package com.adyen.workshop.controllers.requests;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Body of /api/capture.
+ */
+public record CaptureRequestBody(
+        @NotBlank String pspReference,
+        @NotNull @Valid AmountBody amount,
+        String reference
+) {
+
+    @AssertTrue(message = "amount.value is required")
+    public boolean isAmountValuePresent() {
+        return amount == null || amount.valuePresent();
+    }
+}
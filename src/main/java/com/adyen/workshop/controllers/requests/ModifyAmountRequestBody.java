@@ -0,0 +1,37 @@
+package com.adyen.workshop.controllers.requests;
+
+import com.adyen.model.checkout.PaymentAmountUpdateRequest;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Body of /api/modify-amount, a missing amount value adjusts the authorisation to 0.
+ */
+public record ModifyAmountRequestBody(
+        @NotBlank String pspReference,
+        @NotNull @Valid AmountBody amount,
+        String reference,
+        String industryUsage
+) {
+
+    @AssertTrue(message = "industryUsage must be one of delayedCharge, installment or noShow")
+    public boolean isIndustryUsageValid() {
+        return industryUsage == null || industryUsage.isBlank() || industryUsageValue() != null;
+    }
+
+    /**
+     * @return the parsed industryUsage, null when absent or unknown
+     */
+    public PaymentAmountUpdateRequest.IndustryUsageEnum industryUsageValue() {
+        if (industryUsage == null || industryUsage.isBlank()) {
+            return null;
+        }
+        try {
+            return PaymentAmountUpdateRequest.IndustryUsageEnum.fromValue(industryUsage);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.adyen.workshop.controllers.views;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the rendered HTML of the pages served by {@link ViewController}, so a repeat load skips the controller and Thymeleaf.
+ * The pages only vary on the view, the payment type and the client key, which is what the cache is keyed on.
+ * Bounded to the most recently used pages since the type comes from the URL.
+ */
+public class RenderedPageCacheFilter extends OncePerRequestFilter {
+    private static final int MAX_PAGES = 256;
+
+    private final Supplier<String> clientKey;
+    private final Map<String, RenderedPage> pages = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RenderedPage> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+
+    public RenderedPageCacheFilter(Supplier<String> clientKey) {
+        this.clientKey = clientKey;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        var key = request.getRequestURI() + '|' + request.getParameter("type") + '|' + clientKey.get();
+        RenderedPage page;
+        synchronized (pages) {
+            page = pages.get(key);
+        }
+        if (page != null) {
+            response.setContentType(page.contentType());
+            response.setContentLength(page.body().length);
+            response.getOutputStream().write(page.body());
+            return;
+        }
+
+        var responseWrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, responseWrapper);
+        if (responseWrapper.getStatus() == HttpServletResponse.SC_OK && responseWrapper.getContentType() != null
+                && responseWrapper.getContentType().startsWith("text/html")) {
+            synchronized (pages) {
+                pages.put(key, new RenderedPage(responseWrapper.getContentType(), responseWrapper.getContentAsByteArray()));
+            }
+        }
+        responseWrapper.copyBodyToResponse();
+    }
+
+    private record RenderedPage(String contentType, byte[] body) {}
+}
@@ -0,0 +1,52 @@
+package com.adyen.workshop.reconciliation;
+
+/**
+ * Open-addressing set of non-zero longs (0 marks a free slot), used to remember which notifications were already counted.
+ * Not thread-safe, {@link SettlementAggregator} guards it.
+ */
+final class LongHashSet {
+    private long[] keys;
+    private int size;
+
+    LongHashSet(int expectedSize) {
+        keys = new long[Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1];
+    }
+
+    /**
+     * @return false if the key was already present
+     */
+    boolean add(long key) {
+        var slot = slotOf(key, keys);
+        if (keys[slot] == key) {
+            return false;
+        }
+        keys[slot] = key;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize() {
+        var oldKeys = keys;
+        keys = new long[oldKeys.length << 1];
+        for (var key : oldKeys) {
+            if (key != 0) {
+                keys[slotOf(key, keys)] = key;
+            }
+        }
+    }
+
+    private static int slotOf(long key, long[] table) {
+        var mask = table.length - 1;
+        var slot = (int) (key ^ (key >>> 32)) & mask;
+        while (table[slot] != 0 && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,96 @@
+package com.adyen.workshop.reconciliation;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from a packed long key to a running count and amount total.
+ * Keys must be non-zero (0 marks a free slot). Not thread-safe, {@link SettlementAggregator} guards it.
+ */
+final class LongTotalsMap {
+    private long[] keys;
+    private long[] counts;
+    private long[] amounts;
+    private int size;
+
+    LongTotalsMap(int expectedSize) {
+        var capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        counts = new long[capacity];
+        amounts = new long[capacity];
+    }
+
+    void add(long key, long amount) {
+        var slot = slotOf(key, keys);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                counts[slot] = 1;
+                amounts[slot] = amount;
+                resize();
+                return;
+            }
+        }
+        counts[slot]++;
+        amounts[slot] += amount;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(TotalsVisitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                visitor.visit(keys[i], counts[i], amounts[i]);
+            }
+        }
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(counts, 0);
+        Arrays.fill(amounts, 0);
+        size = 0;
+    }
+
+    private void resize() {
+        var oldKeys = keys;
+        var oldCounts = counts;
+        var oldAmounts = amounts;
+        keys = new long[oldKeys.length << 1];
+        counts = new long[keys.length];
+        amounts = new long[keys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                var slot = slotOf(oldKeys[i], keys);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+                amounts[slot] = oldAmounts[i];
+            }
+        }
+    }
+
+    private static int slotOf(long key, long[] table) {
+        var mask = table.length - 1;
+        var slot = (int) mix(key) & mask;
+        while (table[slot] != 0 && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Murmur3 finalizer, spreads the packed day/currency/eventCode bits over the table
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    @FunctionalInterface
+    interface TotalsVisitor {
+        void visit(long key, long count, long amount);
+    }
+}
@@ -0,0 +1,15 @@
+package com.adyen.workshop.reconciliation;
+
+import java.time.LocalDate;
+
+/**
+ * Running totals for one day / currency / eventCode / success combination, day is null for notifications without an eventDate.
+ */
+public record ReconciliationTotal(
+        LocalDate day,
+        String currency,
+        String eventCode,
+        boolean success,
+        long count,
+        long amountValue
+) {}
@@ -0,0 +1,244 @@
+package com.adyen.workshop.reconciliation;
+
+import com.adyen.model.notification.NotificationRequestItem;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds webhook notifications into running totals (count + amount) per day, currency, eventCode and success flag.
+ * Each combination is packed into a single long key so updates don't allocate.
+ * Adyen delivers at least once, so a notification is only counted the first time its pspReference/eventCode/success is seen.
+ * Notifications without a (parseable) eventDate are counted under a day of null rather than guessing one.
+ */
+@Component
+public class SettlementAggregator {
+    private final Logger log = LoggerFactory.getLogger(SettlementAggregator.class);
+    private static final int MAX_IDS = 1 << 12;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    // Stands in for a missing eventDate in the packed key, far outside any real epoch day
+    private static final long UNDATED = Integer.MIN_VALUE;
+
+    private final JsonFactory jsonFactory;
+    private final Object rebuildLock = new Object();
+
+    // Currencies and event codes are mapped to small ids once, the ids are what ends up in the packed key
+    private final Map<String, Integer> currencyIds = new HashMap<>();
+    private final List<String> currencies = new ArrayList<>();
+    private final Map<String, Integer> eventCodeIds = new HashMap<>();
+    private final List<String> eventCodes = new ArrayList<>();
+
+    private LongTotalsMap totals = new LongTotalsMap(1024);
+    private LongHashSet seenEvents = new LongHashSet(1024);
+    // Set while a rebuild runs, live notifications are counted into these as well so the swap doesn't drop them
+    private LongTotalsMap rebuildTotals;
+    private LongHashSet rebuildSeenEvents;
+
+    public SettlementAggregator(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * @return false if the notification was already counted (a redelivery)
+     */
+    public boolean add(NotificationRequestItem item) {
+        var amount = item.getAmount();
+        var eventDate = item.getEventDate();
+        return add(item.getPspReference(),
+                item.getEventCode(),
+                item.isSuccess(),
+                eventDate != null ? epochDay(eventDate.toInstant()) : UNDATED,
+                amount != null ? amount.getCurrency() : null,
+                amount != null && amount.getValue() != null ? amount.getValue() : 0L);
+    }
+
+    public synchronized boolean add(String pspReference, String eventCode, boolean success, long epochDay, String currency, long amountValue) {
+        if (rebuildTotals != null) {
+            fold(rebuildTotals, rebuildSeenEvents, pspReference, eventCode, success, epochDay, currency, amountValue);
+        }
+        return fold(totals, seenEvents, pspReference, eventCode, success, epochDay, currency, amountValue);
+    }
+
+    public synchronized List<ReconciliationTotal> totals() {
+        var result = new ArrayList<ReconciliationTotal>(totals.size());
+        totals.forEach((key, count, amount) -> result.add(new ReconciliationTotal(
+                (key >> 32) != UNDATED ? LocalDate.ofEpochDay(key >> 32) : null,
+                currencies.get((int) (key >>> 20) & (MAX_IDS - 1)),
+                eventCodes.get((int) (key >>> 8) & (MAX_IDS - 1)),
+                (key & 3) == 2,
+                count,
+                amount)));
+        result.sort(Comparator.comparing(ReconciliationTotal::day, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(ReconciliationTotal::currency)
+                .thenComparing(ReconciliationTotal::eventCode)
+                .thenComparing(ReconciliationTotal::success));
+        return result;
+    }
+
+    /**
+     * Replaces the current totals with the ones streamed from an NDJSON archive of raw webhook payloads (see {@link com.adyen.workshop.webhooks.WebhookArchive}).
+     * The archive is read with the streaming parser, only the fields needed for the totals are looked at.
+     * Notifications that arrive while the rebuild runs are counted into the rebuilt totals too, the archive copy of them is then skipped as a redelivery.
+     * Only one rebuild runs at a time.
+     *
+     * @return the number of notifications counted from the archive, redeliveries in the archive are skipped
+     */
+    public long rebuild(Path archiveFile) throws IOException {
+        synchronized (rebuildLock) {
+            var started = System.nanoTime();
+            var rebuiltTotals = new LongTotalsMap(Math.max(1024, totals.size()));
+            var rebuiltSeenEvents = new LongHashSet(Math.max(1024, seenEvents.size()));
+            long events = 0;
+            long duplicates = 0;
+
+            synchronized (this) {
+                rebuildTotals = rebuiltTotals;
+                rebuildSeenEvents = rebuiltSeenEvents;
+            }
+            try (var parser = jsonFactory.createParser(archiveFile.toFile())) {
+                JsonToken token;
+                while ((token = parser.nextToken()) != null) {
+                    if (token == JsonToken.FIELD_NAME && "NotificationRequestItem".equals(parser.currentName())
+                            && parser.nextToken() == JsonToken.START_OBJECT) {
+                        if (readItem(parser, rebuiltTotals, rebuiltSeenEvents)) {
+                            events++;
+                        } else {
+                            duplicates++;
+                        }
+                    }
+                }
+
+                synchronized (this) {
+                    totals = rebuiltTotals;
+                    seenEvents = rebuiltSeenEvents;
+                }
+            } finally {
+                synchronized (this) {
+                    rebuildTotals = null;
+                    rebuildSeenEvents = null;
+                }
+            }
+            log.info("Rebuilt settlement totals from {} notifications ({} redeliveries skipped) in {} ms",
+                    events, duplicates, (System.nanoTime() - started) / 1_000_000);
+            return events;
+        }
+    }
+
+    private boolean readItem(JsonParser parser, LongTotalsMap targetTotals, LongHashSet targetSeenEvents) throws IOException {
+        String pspReference = null;
+        String eventCode = null;
+        String currency = null;
+        var success = false;
+        long amountValue = 0;
+        var epochDay = UNDATED;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.currentName();
+            var value = parser.nextToken();
+            switch (field) {
+                case "pspReference" -> pspReference = parser.getValueAsString();
+                case "eventCode" -> eventCode = parser.getText();
+                // Adyen sends success as the string "true"/"false"
+                case "success" -> success = value == JsonToken.VALUE_TRUE || (value == JsonToken.VALUE_STRING && "true".equals(parser.getText()));
+                case "eventDate" -> epochDay = value == JsonToken.VALUE_STRING ? epochDay(parser.getText()) : UNDATED;
+                case "amount" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            var amountField = parser.currentName();
+                            parser.nextToken();
+                            if ("value".equals(amountField)) {
+                                amountValue = parser.getValueAsLong();
+                            } else if ("currency".equals(amountField)) {
+                                currency = parser.getValueAsString();
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        synchronized (this) {
+            return fold(targetTotals, targetSeenEvents, pspReference, eventCode, success, epochDay, currency, amountValue);
+        }
+    }
+
+    private boolean fold(LongTotalsMap targetTotals, LongHashSet targetSeenEvents, String pspReference, String eventCode, boolean success,
+                         long epochDay, String currency, long amountValue) {
+        if (pspReference != null && !targetSeenEvents.add(eventId(pspReference, eventCode, success))) {
+            return false;
+        }
+        targetTotals.add(key(epochDay, currency, eventCode, success), amountValue);
+        return true;
+    }
+
+    // 64-bit FNV-1a over pspReference, eventCode and success, 0 is reserved as the free slot in LongHashSet.
+    // With 64 bits a false "already seen" stays negligible even for hundreds of millions of notifications.
+    private static long eventId(String pspReference, String eventCode, boolean success) {
+        var hash = fnv1a(FNV_OFFSET_BASIS, pspReference);
+        hash = (hash ^ '|') * FNV_PRIME;
+        hash = fnv1a(hash, eventCode != null ? eventCode : "");
+        hash = (hash ^ (success ? 'T' : 'F')) * FNV_PRIME;
+        return hash != 0 ? hash : 1;
+    }
+
+    private static long fnv1a(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    // Layout: epochDay (32 bits) | currency id (12 bits) | eventCode id (12 bits) | success (2 bits, never 0)
+    private long key(long epochDay, String currency, String eventCode, boolean success) {
+        var currencyId = idOf(currencyIds, currencies, currency != null ? currency : "");
+        var eventCodeId = idOf(eventCodeIds, eventCodes, eventCode != null ? eventCode : "");
+        return (epochDay << 32) | ((long) currencyId << 20) | ((long) eventCodeId << 8) | (success ? 2 : 1);
+    }
+
+    private static int idOf(Map<String, Integer> ids, List<String> names, String name) {
+        var id = ids.get(name);
+        if (id == null) {
+            if (names.size() == MAX_IDS) {
+                throw new IllegalStateException("Too many distinct values to aggregate, could not add " + name);
+            }
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    private static long epochDay(Instant instant) {
+        return Math.floorDiv(instant.toEpochMilli(), MILLIS_PER_DAY);
+    }
+
+    private long epochDay(String eventDate) {
+        try {
+            return epochDay(OffsetDateTime.parse(eventDate).toInstant());
+        } catch (DateTimeParseException e) {
+            log.warn("Unable to parse eventDate {}", eventDate);
+            return UNDATED;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.adyen.workshop.webhooks;
+
+import com.adyen.workshop.configurations.ApplicationConfiguration;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends every accepted webhook payload to an NDJSON file (one payload per line), set via WEBHOOK_ARCHIVE_FILE.
+ * Archiving is switched off when the property isn't set.
+ */
+@Component
+public class WebhookArchive {
+    private final Path archiveFile;
+
+    public WebhookArchive(ApplicationConfiguration applicationConfiguration) {
+        var configuredFile = applicationConfiguration.getWebhookArchiveFile();
+        this.archiveFile = (configuredFile != null && !configuredFile.isBlank()) ? Path.of(configuredFile) : null;
+    }
+
+    public boolean isEnabled() {
+        return archiveFile != null;
+    }
+
+    public Path getArchiveFile() {
+        return archiveFile;
+    }
+
+    public synchronized void append(String json) throws IOException {
+        if (archiveFile == null) {
+            return;
+        }
+        // Raw line breaks in JSON can only be whitespace (inside strings they're escaped), so dropping them keeps one payload per line
+        var line = json.replace("\r", "").replace("\n", "") + "\n";
+        Files.writeString(archiveFile, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,15 @@
+package com.adyen.workshop.webhooks;
+
+/**
+ * Short view of a notification item, kept for the most recent webhooks.
+ */
+public record WebhookEventSummary(
+        String eventCode,
+        Boolean success,
+        String merchantReference,
+        String pspReference,
+        String originalReference,
+        String reason,
+        Long amountValue,
+        String amountCurrency
+) {}
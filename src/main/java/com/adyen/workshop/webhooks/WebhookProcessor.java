@@ -0,0 +1,113 @@
+package com.adyen.workshop.webhooks;
+
+import com.adyen.model.notification.NotificationRequestItem;
+import com.adyen.util.HMACValidator;
+import com.adyen.workshop.configurations.ApplicationConfiguration;
+import com.adyen.workshop.reconciliation.SettlementAggregator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.security.SignatureException;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Validation and processing of classic notification items, shared by the /webhooks endpoint and {@link WebhookReplayer}.
+ */
+@Component
+public class WebhookProcessor {
+    private final Logger log = LoggerFactory.getLogger(WebhookProcessor.class);
+    private final Deque<WebhookEventSummary> recentWebhookEvents = new ConcurrentLinkedDeque<>();
+
+    private final ApplicationConfiguration applicationConfiguration;
+
+    private final HMACValidator hmacValidator;
+
+    private final SettlementAggregator settlementAggregator;
+
+    public WebhookProcessor(ApplicationConfiguration applicationConfiguration, HMACValidator hmacValidator, SettlementAggregator settlementAggregator) {
+        this.applicationConfiguration = applicationConfiguration;
+        this.hmacValidator = hmacValidator;
+        this.settlementAggregator = settlementAggregator;
+    }
+
+    // Step 16 - Validate the HMAC signature using the ADYEN_HMAC_KEY
+    public boolean isValid(NotificationRequestItem item) throws SignatureException {
+        return hmacValidator.validateHMAC(item, this.applicationConfiguration.getAdyenHmacKey());
+    }
+
+    /**
+     * Validates every item before processing any of them: Adyen redelivers a rejected payload as a whole,
+     * so none of its items may have been processed yet.
+     *
+     * @return false if an item has an invalid HMAC signature, nothing is processed in that case
+     */
+    public boolean validateAndProcess(List<NotificationRequestItem> items) throws SignatureException {
+        if (!validateAll(items)) {
+            return false;
+        }
+        items.forEach(this::process);
+        return true;
+    }
+
+    /**
+     * @return false if an item has an invalid HMAC signature
+     */
+    public boolean validateAll(List<NotificationRequestItem> items) throws SignatureException {
+        for (var item : items) {
+            if (!isValid(item)) {
+                log.warn("Could not validate HMAC signature for incoming webhook message: {}", item);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void process(NotificationRequestItem item) {
+        var eventCode = item.getEventCode();
+        var success = item.isSuccess();
+        var merchantReference = item.getMerchantReference();
+        var pspReference = item.getPspReference();
+        var additionalData = item.getAdditionalData();
+        // Token can show up under different keys
+        String storedPaymentMethodId = additionalData != null
+                ? (additionalData.get("tokenization.storedPaymentMethodId") != null
+                    ? additionalData.get("tokenization.storedPaymentMethodId")
+                    : additionalData.get("storedPaymentMethodId"))
+                : null;
+        String recurringDetailReference = additionalData != null
+                ? additionalData.get("recurring.recurringDetailReference")
+                : null;
+
+        // Log any classic notification with token info if present
+        log.info("Webhook eventCode={}, success={}, merchantRef={}, pspRef={}, token={}, storedPaymentMethodId={}",
+                eventCode, success, merchantReference, pspReference, recurringDetailReference, storedPaymentMethodId);
+        rememberWebhook(item);
+        settlementAggregator.add(item);
+    }
+
+    public List<WebhookEventSummary> recentWebhooks() {
+        return List.copyOf(recentWebhookEvents);
+    }
+
+    private void rememberWebhook(NotificationRequestItem item) {
+        var amount = item.getAmount();
+        var summary = new WebhookEventSummary(
+                item.getEventCode(),
+                item.isSuccess(),
+                item.getMerchantReference(),
+                item.getPspReference(),
+                item.getOriginalReference(),
+                item.getReason(),
+                amount != null ? amount.getValue() : null,
+                amount != null ? amount.getCurrency() : null
+        );
+
+        recentWebhookEvents.addFirst(summary);
+        while (recentWebhookEvents.size() > 25) {
+            recentWebhookEvents.removeLast();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.adyen.workshop.webhooks;
+
+import com.adyen.model.notification.NotificationRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Feeds archived webhook payloads through {@link WebhookProcessor} without going over HTTP, e.g. after fixing a processing bug
+ * or when bringing up a new node. Runs on startup when the replay option is given:
+ * <pre>
+ * ./gradlew bootRun --args='--replay=/var/adyen/webhooks.ndjson --replay-threads=8 --replay-max-rate=5000 --replay-dry-run'
+ * </pre>
+ * The source is either an NDJSON dump (one raw payload per line, see WEBHOOK_ARCHIVE_FILE) or a directory with one payload per file.
+ * Payloads are validated (HMAC) and processed in parallel batches, --replay-dry-run only validates.
+ * Replaying onto a node that already counted some of the notifications doesn't inflate the totals, {@link
+ * com.adyen.workshop.reconciliation.SettlementAggregator} skips notifications it has already seen.
+ * Every processed item is logged by WebhookProcessor, add --logging.level.com.adyen.workshop.webhooks.WebhookProcessor=warn for large replays.
+ */
+@Component
+public class WebhookReplayer implements ApplicationRunner {
+    private final Logger log = LoggerFactory.getLogger(WebhookReplayer.class);
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    // With a rate limit a batch holds at most this fraction of a second's worth of payloads, so the limit holds within a batch too
+    private static final int BATCHES_PER_SECOND = 10;
+
+    private final WebhookProcessor webhookProcessor;
+
+    public WebhookReplayer(WebhookProcessor webhookProcessor) {
+        this.webhookProcessor = webhookProcessor;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.containsOption("replay")) {
+            return;
+        }
+
+        var replayValues = args.getOptionValues("replay");
+        if (replayValues.isEmpty() || replayValues.get(0).isBlank()) {
+            throw new IllegalArgumentException("--replay needs a file or directory, e.g. --replay=/var/adyen/webhooks.ndjson");
+        }
+        var source = Path.of(replayValues.get(0));
+        var batchSize = intOption(args, "replay-batch-size", 500);
+        var threads = intOption(args, "replay-threads", Runtime.getRuntime().availableProcessors());
+        var maxEventsPerSecond = intOption(args, "replay-max-rate", 0);
+        var dryRun = args.containsOption("replay-dry-run");
+
+        replay(source, batchSize, threads, maxEventsPerSecond, dryRun);
+    }
+
+    /**
+     * @param maxEventsPerSecond upper bound on notification items per second, 0 for no limit
+     * @throws IllegalArgumentException if the source doesn't exist or one of the numbers is out of range
+     */
+    public ReplayResult replay(Path source, int batchSize, int threads, int maxEventsPerSecond, boolean dryRun) throws IOException, InterruptedException {
+        if (!Files.exists(source)) {
+            throw new IllegalArgumentException("--replay source " + source + " does not exist");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("--replay-batch-size must be a positive integer, got " + batchSize);
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("--replay-threads must be a positive integer, got " + threads);
+        }
+        if (maxEventsPerSecond < 0) {
+            throw new IllegalArgumentException("--replay-max-rate must be 0 (no limit) or a positive integer, got " + maxEventsPerSecond);
+        }
+        if (maxEventsPerSecond > 0) {
+            batchSize = Math.min(batchSize, Math.max(1, maxEventsPerSecond / BATCHES_PER_SECOND));
+        }
+        log.info("Replaying webhooks from {} (batchSize={}, threads={}, maxEventsPerSecond={}, dryRun={})",
+                source, batchSize, threads, maxEventsPerSecond, dryRun);
+
+        var counters = new ReplayCounters();
+        var started = System.nanoTime();
+        var lastProgress = started;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (var payloads = payloads(source)) {
+            var iterator = payloads.iterator();
+            var batch = new ArrayList<Callable<Void>>(batchSize);
+            while (iterator.hasNext()) {
+                var json = iterator.next();
+                batch.add(() -> {
+                    replayPayload(json, dryRun, counters);
+                    return null;
+                });
+                if (batch.size() < batchSize && iterator.hasNext()) {
+                    continue;
+                }
+
+                executor.invokeAll(batch);
+                batch.clear();
+
+                var now = System.nanoTime();
+                if (maxEventsPerSecond > 0) {
+                    // Sleep off whatever we are ahead of the allowed rate
+                    var allowedNanos = counters.events.sum() * 1_000_000_000L / maxEventsPerSecond;
+                    var aheadNanos = allowedNanos - (now - started);
+                    if (aheadNanos > 0) {
+                        TimeUnit.NANOSECONDS.sleep(aheadNanos);
+                    }
+                }
+                if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                    log.info("Replayed {} events so far ({} events/s)", counters.events.sum(), eventsPerSecond(counters.events.sum(), now - started));
+                    lastProgress = now;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            executor.shutdown();
+        }
+
+        var result = new ReplayResult(
+                counters.payloads.sum(),
+                counters.events.sum(),
+                counters.rejected.sum(),
+                counters.failed.sum(),
+                eventsPerSecond(counters.events.sum(), System.nanoTime() - started));
+        log.info("Webhook replay finished: {}", result);
+        return result;
+    }
+
+    private void replayPayload(String json, boolean dryRun, ReplayCounters counters) {
+        counters.payloads.increment();
+        NotificationRequest notificationRequest;
+        try {
+            notificationRequest = NotificationRequest.fromJson(json);
+        } catch (Exception e) {
+            log.warn("Unable to parse archived webhook payload", e);
+            counters.failed.increment();
+            return;
+        }
+
+        var items = notificationRequest.getNotificationItems();
+        if (items == null) {
+            // Management events (e.g. recurring.token.*) aren't archived, nothing to replay
+            return;
+        }
+
+        try {
+            // Same validate-then-process path as the /webhooks endpoint
+            var accepted = dryRun ? webhookProcessor.validateAll(items) : webhookProcessor.validateAndProcess(items);
+            if (!accepted) {
+                counters.rejected.increment();
+                return;
+            }
+        } catch (SignatureException e) {
+            log.warn("Unable to validate HMAC signature for archived webhook payload", e);
+            counters.rejected.increment();
+            return;
+        } catch (RuntimeException e) {
+            log.error("Unable to process archived webhook payload", e);
+            counters.failed.increment();
+            return;
+        }
+        counters.events.add(items.size());
+    }
+
+    private Stream<String> payloads(Path source) throws IOException {
+        if (Files.isDirectory(source)) {
+            return Files.list(source)
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .map(WebhookReplayer::readPayload);
+        }
+        return Files.lines(source).filter(line -> !line.isBlank());
+    }
+
+    private static String readPayload(Path file) {
+        try {
+            return Files.readString(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int intOption(ApplicationArguments args, String name, int defaultValue) {
+        List<String> values = args.getOptionValues(name);
+        if (values == null || values.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(values.get(0).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " must be an integer, got '" + values.get(0) + "'");
+        }
+    }
+
+    private static long eventsPerSecond(long events, long elapsedNanos) {
+        return elapsedNanos > 0 ? events * 1_000_000_000L / elapsedNanos : events;
+    }
+
+    public record ReplayResult(
+            long payloads,
+            long events,
+            long rejected,
+            long failed,
+            long eventsPerSecond
+    ) {}
+
+    private static final class ReplayCounters {
+        private final LongAdder payloads = new LongAdder();
+        private final LongAdder events = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+    }
+}